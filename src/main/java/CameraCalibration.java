@@ -0,0 +1,95 @@
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+public class CameraCalibration {
+
+	public Mat cameraMatrix;
+	public MatOfDouble distCoeffs;
+
+	// undistorted pixel coordinates for every pixel of the frame
+	private int mapWidth, mapHeight;
+	private float[] mapX, mapY;
+
+	public CameraCalibration(double[] cameraMatrix, double[] distCoeffs) {
+		this.cameraMatrix = new Mat(3, 3, CvType.CV_64F);
+		this.cameraMatrix.put(0, 0, cameraMatrix);
+		this.distCoeffs = new MatOfDouble(distCoeffs);
+	}
+
+	/**
+	 * Read calibration from a camera's "calibration" object, or null if it is malformed.
+	 */
+	public static CameraCalibration fromJson(JsonObject config) {
+		if(!config.has("cameraMatrix") || !config.has("distCoeffs")) return null;
+		JsonArray matrixArray = config.get("cameraMatrix").getAsJsonArray();
+		JsonArray distArray = config.get("distCoeffs").getAsJsonArray();
+		if(matrixArray.size() != 9) return null;
+		if(distArray.size() != 4 && distArray.size() != 5 && distArray.size() != 8) return null;
+		double[] matrix = new double[matrixArray.size()];
+		for(int i = 0; i < matrix.length; i++) {
+			matrix[i] = matrixArray.get(i).getAsDouble();
+		}
+		double[] dist = new double[distArray.size()];
+		for(int i = 0; i < dist.length; i++) {
+			dist[i] = distArray.get(i).getAsDouble();
+		}
+		return new CameraCalibration(matrix, dist);
+	}
+
+	/**
+	 * Build the undistortion map for a frame size. Only runs when the size changes.
+	 */
+	public void prepare(int width, int height) {
+		if(width == mapWidth && height == mapHeight) return;
+		Point[] pixels = new Point[width * height];
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				pixels[y * width + x] = new Point(x, y);
+			}
+		}
+		MatOfPoint2f distorted = new MatOfPoint2f(pixels);
+		MatOfPoint2f undistorted = new MatOfPoint2f();
+		Imgproc.undistortPoints(distorted, undistorted, cameraMatrix, distCoeffs, new Mat(), cameraMatrix);
+
+		float[] interleaved = new float[width * height * 2];
+		undistorted.get(0, 0, interleaved);
+		mapX = new float[width * height];
+		mapY = new float[width * height];
+		for(int i = 0; i < mapX.length; i++) {
+			mapX[i] = interleaved[2 * i];
+			mapY[i] = interleaved[2 * i + 1];
+		}
+		mapWidth = width;
+		mapHeight = height;
+
+		distorted.release();
+		undistorted.release();
+	}
+
+	/**
+	 * Undistort a single pixel coordinate by bilinear lookup in the prepared map.
+	 */
+	public Point undistort(Point p) {
+		double x = Math.min(Math.max(p.x, 0), mapWidth - 1.001);
+		double y = Math.min(Math.max(p.y, 0), mapHeight - 1.001);
+		int x0 = (int)x, y0 = (int)y;
+		double fx = x - x0, fy = y - y0;
+		int i = y0 * mapWidth + x0;
+		return new Point(
+			lerp(lerp(mapX[i], mapX[i + 1], fx), lerp(mapX[i + mapWidth], mapX[i + mapWidth + 1], fx), fy) + (p.x - x),
+			lerp(lerp(mapY[i], mapY[i + 1], fx), lerp(mapY[i + mapWidth], mapY[i + mapWidth + 1], fx), fy) + (p.y - y)
+		);
+	}
+
+	private static double lerp(double a, double b, double t) {
+		return a + (b - a) * t;
+	}
+
+}
@@ -0,0 +1,43 @@
+import org.opencv.core.Mat;
+
+import edu.wpi.cscore.CvSink;
+import edu.wpi.cscore.VideoSource;
+import edu.wpi.first.cameraserver.CameraServer;
+
+public class CameraFrameSource implements FrameSource {
+
+	VideoSource camera;
+	CvSink sink;
+
+	public CameraFrameSource(VideoSource camera) {
+		this.camera = camera;
+		this.sink = CameraServer.getInstance().getVideo(camera);
+	}
+
+	@Override
+	public long grabFrame(Mat mat, double timeout) {
+		return sink.grabFrame(mat, timeout);
+	}
+
+	@Override
+	public String getError() {
+		return sink.getError();
+	}
+
+	@Override
+	public String getName() {
+		return camera.getName();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return camera.isConnected();
+	}
+
+	@Override
+	public void reconnect() {
+		camera.setConnectionStrategy(VideoSource.ConnectionStrategy.kForceClose);
+		camera.setConnectionStrategy(VideoSource.ConnectionStrategy.kKeepOpen);
+	}
+
+}
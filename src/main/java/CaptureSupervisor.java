@@ -0,0 +1,131 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+
+import org.opencv.core.Mat;
+
+import edu.wpi.first.networktables.NetworkTable;
+
+public class CaptureSupervisor {
+
+	public static double grabTimeout = 0.25;
+	public static int errorsBeforeBackoff = 3, errorsBeforeReconnect = 10;
+	public static long minBackoffMillis = 20, maxBackoffMillis = 1000, backoffSliceMillis = 10;
+
+	List<FrameSource> sources;
+	// source the driver wants, so a backoff on a dead camera ends as soon as they switch away
+	IntSupplier selection;
+
+	// written by the vision thread, read by publish() on the main thread
+	private AtomicIntegerArray consecutiveErrors;
+	private AtomicLongArray totalErrors, frames;
+	private volatile int selected = -1;
+
+	private long[] publishedFrames;
+	private long lastPublish = System.nanoTime();
+
+	// capture time of the last good frame, from the source's clock
+	public volatile long lastFrameTime;
+
+	public CaptureSupervisor(List<FrameSource> sources) {
+		this(sources, null);
+	}
+
+	public CaptureSupervisor(List<FrameSource> sources, IntSupplier selection) {
+		this.sources = sources;
+		this.selection = selection;
+		consecutiveErrors = new AtomicIntegerArray(sources.size());
+		totalErrors = new AtomicLongArray(sources.size());
+		frames = new AtomicLongArray(sources.size());
+		publishedFrames = new long[sources.size()];
+	}
+
+	/**
+	 * Grab a frame from a source. Returns false if the frame should not be processed.
+	 */
+	public boolean grab(int index, Mat mat) {
+		selected = index;
+		FrameSource source = sources.get(index);
+		long time = source.grabFrame(mat, grabTimeout);
+		if(time != 0) {
+			lastFrameTime = time;
+			consecutiveErrors.set(index, 0);
+			frames.incrementAndGet(index);
+			return true;
+		}
+
+		int errors = consecutiveErrors.incrementAndGet(index);
+		totalErrors.incrementAndGet(index);
+		if(errors % errorsBeforeReconnect == 0) {
+			System.err.println("camera '" + source.getName() + "': " + errors + " failed grabs (" + source.getError() + "), reconnecting");
+			source.reconnect();
+		}
+		if(errors >= errorsBeforeBackoff) {
+			waitBackoff(index, backoff(errors));
+		}
+		return false;
+	}
+
+	/**
+	 * Sleep in short slices, returning early if a different source is selected.
+	 */
+	private void waitBackoff(int index, long millis) {
+		long end = System.nanoTime() + millis * 1000000;
+		try {
+			for(long left = millis * 1000000; left > 0; left = end - System.nanoTime()) {
+				if(selection != null && selection.getAsInt() != index) return;
+				Thread.sleep(Math.min(left / 1000000 + 1, backoffSliceMillis));
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Milliseconds to wait after a run of failed grabs, doubling up to maxBackoffMillis.
+	 */
+	public static long backoff(int errors) {
+		int doublings = Math.min(errors - errorsBeforeBackoff, 30);
+		return Math.min(minBackoffMillis << doublings, maxBackoffMillis);
+	}
+
+	public int consecutiveErrors(int index) {
+		return consecutiveErrors.get(index);
+	}
+
+	public long totalErrors(int index) {
+		return totalErrors.get(index);
+	}
+
+	public long frames(int index) {
+		return frames.get(index);
+	}
+
+	/**
+	 * Only the selected source is grabbed, so the others can only be judged by their connection.
+	 */
+	public boolean isHealthy(int index) {
+		if(index != selected) return sources.get(index).isConnected();
+		return consecutiveErrors.get(index) < errorsBeforeBackoff;
+	}
+
+	/**
+	 * Publish health and frame rate of every camera under a subtable per camera name.
+	 */
+	public void publish(NetworkTable camerasTable) {
+		long now = System.nanoTime();
+		double seconds = (now - lastPublish) / 1e9;
+		lastPublish = now;
+		for(int i = 0; i < sources.size(); i++) {
+			long count = frames.get(i);
+			NetworkTable table = camerasTable.getSubTable(sources.get(i).getName());
+			table.getEntry("connected").setBoolean(sources.get(i).isConnected());
+			table.getEntry("healthy").setBoolean(isHealthy(i));
+			table.getEntry("fps").setDouble((count - publishedFrames[i]) / seconds);
+			table.getEntry("errors").setDouble(totalErrors.get(i));
+			publishedFrames[i] = count;
+		}
+	}
+
+}
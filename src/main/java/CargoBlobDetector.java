@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import edu.wpi.first.vision.VisionPipeline;
+
+/**
+ * Cargo front end that labels the threshold mask once with connected components and only
+ * fits circles to the blobs whose stats pass the area and aspect filters.
+ */
+public class CargoBlobDetector implements VisionPipeline {
+
+	// same ranges as CargoPipeline
+	static final Scalar lowerHLS = new Scalar(0.0, 40.0, 100.0), upperHLS = new Scalar(50.0, 230.0, 255.0);
+
+	// minArea is in full resolution pixels, scale is the input's size relative to full resolution
+	public double minArea = 50.0;
+	public double minAspect = 0.5, maxAspect = 2.0;
+	public double scale = 1.0;
+
+	private Mat hslThresholdOutput = new Mat();
+	private Mat labels = new Mat(), stats = new Mat(), centroids = new Mat();
+	private Mat blobMask = new Mat(), hierarchy = new Mat();
+	private int[] statsBuffer = new int[0];
+	private List<MatOfPoint> contours = new ArrayList<>();
+	private MatOfPoint2f points = new MatOfPoint2f();
+	private ArrayList<Circle> circlesOutput = new ArrayList<Circle>();
+
+	@Override public void process(Mat source0) {
+		Imgproc.cvtColor(source0, hslThresholdOutput, Imgproc.COLOR_BGR2HLS);
+		Core.inRange(hslThresholdOutput, lowerHLS, upperHLS, hslThresholdOutput);
+
+		int count = Imgproc.connectedComponentsWithStats(hslThresholdOutput, labels, stats, centroids, 8, CvType.CV_32S);
+		int length = count * Imgproc.CC_STAT_MAX;
+		if(statsBuffer.length < length) statsBuffer = new int[length];
+		stats.get(0, 0, statsBuffer);
+
+		circlesOutput.clear();
+		double scaledMinArea = minArea * scale * scale;
+		// label 0 is the background
+		for(int i = 1; i < count; i++) {
+			int offset = i * Imgproc.CC_STAT_MAX;
+			int width = statsBuffer[offset + Imgproc.CC_STAT_WIDTH];
+			int height = statsBuffer[offset + Imgproc.CC_STAT_HEIGHT];
+			if(statsBuffer[offset + Imgproc.CC_STAT_AREA] < scaledMinArea) continue;
+			double aspect = width / (double)height;
+			if(aspect < minAspect || aspect > maxAspect) continue;
+
+			Rect box = new Rect(statsBuffer[offset + Imgproc.CC_STAT_LEFT], statsBuffer[offset + Imgproc.CC_STAT_TOP], width, height);
+			circlesOutput.add(fitCircle(box, i));
+		}
+	}
+
+	/**
+	 * Fit a circle to one labelled blob, looking only inside its bounding box.
+	 */
+	private Circle fitCircle(Rect box, int label) {
+		Mat roi = labels.submat(box);
+		Core.compare(roi, new Scalar(label), blobMask, Core.CMP_EQ);
+		roi.release();
+		contours.clear();
+		Imgproc.findContours(blobMask, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE, new Point(box.x, box.y));
+
+		Circle circle = new Circle(new Point(), 0);
+		float[] radius = new float[1];
+		for(MatOfPoint contour : contours) {
+			contour.convertTo(points, CvType.CV_32F);
+			Point center = new Point();
+			Imgproc.minEnclosingCircle(points, center, radius);
+			if(radius[0] > circle.radius) {
+				circle.center = center;
+				circle.radius = radius[0];
+			}
+			contour.release();
+		}
+		return circle;
+	}
+
+	/**
+	 * Threshold mask that the components were labelled from.
+	 * @return Mat binary mask, 255 where a pixel is cargo coloured.
+	 */
+	public Mat hslThresholdOutput() {
+		return hslThresholdOutput;
+	}
+
+	/**
+	 * Circles fitted to the blobs that passed the filters.
+	 * @return ArrayList<Circle> one per accepted blob.
+	 */
+	public ArrayList<Circle> circlesOutput() {
+		return circlesOutput;
+	}
+
+}
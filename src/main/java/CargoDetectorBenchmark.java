@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Compares the contour and connected-components cargo detectors on increasingly cluttered frames.
+ * Both run with the same area and aspect limits, and again with no limits at all, so the gap
+ * comes from the detector rather than from the filters.
+ *
+ * Usage: CargoDetectorBenchmark [frames] [repeats]
+ */
+public final class CargoDetectorBenchmark {
+
+	static final int[] speckleLevels = {0, 100, 500, 2000, 5000};
+
+	static CargoPipeline contourPipeline = new CargoPipeline();
+	static CargoBlobDetector blobDetector = new CargoBlobDetector();
+	static double minArea, minAspect, maxAspect;
+
+	private CargoDetectorBenchmark() {
+	}
+
+	public static void main(String... args) {
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		System.out.println("speckles  filters  contours ms  components ms  contours p/r    components p/r");
+		for(int speckles : speckleLevels) {
+			SyntheticFrameGenerator generator = new SyntheticFrameGenerator(4509);
+			generator.speckles = speckles;
+			List<Mat> mats = new ArrayList<>();
+			List<SyntheticFrameGenerator.Truth> truths = new ArrayList<>();
+			for(int i = 0; i < frames; i++) {
+				Mat mat = new Mat();
+				truths.add(generator.render(mat));
+				mats.add(mat);
+			}
+
+			for(boolean filtered : new boolean[]{ true, false }) {
+				CargoBlobDetector defaults = new CargoBlobDetector();
+				minArea = filtered ? defaults.minArea : 0;
+				minAspect = filtered ? defaults.minAspect : 0;
+				maxAspect = filtered ? defaults.maxAspect : Double.POSITIVE_INFINITY;
+
+				String[] contours = run(mats, truths, repeats, false);
+				String[] components = run(mats, truths, repeats, true);
+				System.out.println(String.format("%8d  %-7s  %11s  %13s  %-14s  %s",
+					speckles, filtered ? "on" : "off", contours[0], components[0], contours[1], components[1]));
+			}
+
+			for(Mat mat : mats) {
+				mat.release();
+			}
+		}
+	}
+
+	static Circle[] detect(Mat mat, boolean components) {
+		if(components) {
+			blobDetector.minArea = minArea;
+			blobDetector.minAspect = minAspect;
+			blobDetector.maxAspect = maxAspect;
+			blobDetector.process(mat);
+			return blobDetector.circlesOutput().toArray(new Circle[]{});
+		}
+
+		// the full contour front end, then the same limits applied to its hulls
+		contourPipeline.process(mat);
+		List<Circle> circles = new ArrayList<>();
+		float[] radius = new float[1];
+		MatOfPoint2f points = new MatOfPoint2f();
+		for(MatOfPoint hull : contourPipeline.convexHullsOutput()) {
+			Rect box = Imgproc.boundingRect(hull);
+			double aspect = box.width / (double)box.height;
+			if(Imgproc.contourArea(hull) < minArea || aspect < minAspect || aspect > maxAspect) continue;
+			hull.convertTo(points, CvType.CV_32F);
+			Point center = new Point();
+			Imgproc.minEnclosingCircle(points, center, radius);
+			circles.add(new Circle(center, radius[0]));
+		}
+		points.release();
+		return circles.toArray(new Circle[]{});
+	}
+
+	/**
+	 * Time one detector over every frame and score it, returned as {ms per frame, precision/recall}.
+	 */
+	static String[] run(List<Mat> mats, List<SyntheticFrameGenerator.Truth> truths, int repeats, boolean components) {
+		int truePositives = 0, detections = 0, drawn = 0;
+		for(int i = 0; i < mats.size(); i++) {
+			Circle[] circles = detect(mats.get(i), components);
+			double[] x = new double[circles.length], y = new double[circles.length];
+			for(int j = 0; j < circles.length; j++) {
+				x[j] = circles[j].center.x;
+				y[j] = circles[j].center.y;
+			}
+			truePositives += SoakRunner.matchCargo(truths.get(i).cargo, x, y);
+			detections += circles.length;
+			drawn += truths.get(i).cargo.size();
+		}
+
+		long start = System.nanoTime();
+		for(int r = 0; r < repeats; r++) {
+			for(Mat mat : mats) {
+				detect(mat, components);
+			}
+		}
+		double millis = (System.nanoTime() - start) / 1e6 / (repeats * mats.size());
+		return new String[]{ String.format("%.3f", millis), SoakRunner.ratio(truePositives, detections) + "/" + SoakRunner.ratio(truePositives, drawn) };
+	}
+
+}
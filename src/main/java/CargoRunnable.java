@@ -3,15 +3,22 @@ import java.util.stream.Collectors;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 
-import edu.wpi.first.networktables.NetworkTableInstance;
-
 public class CargoRunnable implements Runnable {
 
 	static CargoPipeline pipeline = new CargoPipeline();
+	static CargoBlobDetector blobDetector = new CargoBlobDetector();
+	public static boolean useComponents = false;
+	// vision/cargo once Main has started NetworkTables
+	public static ResultPublisher publisher = ResultPublisher.none;
 
 	Mat mat;
+	double scale = 1.0;
+	double[] cargoX = new double[0], cargoY = new double[0], cargoR = new double[0];
+	private Mat scaled = new Mat();
 
 	public CargoRunnable(Mat mat) {
 		this.mat = mat;
@@ -19,29 +26,44 @@ public class CargoRunnable implements Runnable {
 
 	@Override
 	public void run() {
-		pipeline.process(this.mat);
-		Circle[] circles = pipeline.filterContoursOutput().parallelStream().map((mat) -> {
-			Circle circle = new Circle();
-			float[] radius = new float[]{};
+		Mat input = this.mat;
+		if(scale != 1.0) {
+			Imgproc.resize(this.mat, scaled, new Size(), scale, scale, Imgproc.INTER_NEAREST);
+			input = scaled;
+		}
+		blobDetector.scale = scale;
+		Circle[] circles = useComponents ? detectComponents(input) : detectContours(input);
+
+		cargoX = new double[circles.length];
+		cargoY = new double[circles.length];
+		cargoR = new double[circles.length];
+
+		for(int i = 0; i < circles.length; i++) {
+			cargoX[i] = circles[i].center.x / scale;
+			cargoY[i] = circles[i].center.y / scale;
+			cargoR[i] = circles[i].radius / scale;
+		}
+		publisher.putDoubleArray("x", cargoX);
+		publisher.putDoubleArray("y", cargoY);
+		publisher.putDoubleArray("r", cargoR);
+	}
+
+	public static Circle[] detectContours(Mat input) {
+		pipeline.process(input);
+		return pipeline.filterContoursOutput().parallelStream().map((mat) -> {
+			Circle circle = new Circle(new Point(), 0);
+			float[] radius = new float[1];
 			MatOfPoint2f mat2f = new MatOfPoint2f();
 			mat.convertTo(mat2f, CvType.CV_32F);
 			Imgproc.minEnclosingCircle(mat2f, circle.center, radius);
 			circle.radius = radius[0];
 			return circle;
 		}).collect(Collectors.toList()).toArray(new Circle[]{});
+	}
 
-		double[] cargoX = new double[circles.length];
-		double[] cargoY = new double[circles.length];
-		double[] cargoR = new double[circles.length];
-
-		for(int i = 0; i < circles.length; i++) {
-			cargoX[i] = circles[i].center.x;
-			cargoY[i] = circles[i].center.y;
-			cargoR[i] = circles[i].radius;
-		}
-		NetworkTableInstance.getDefault().getTable("vision/cargo").getEntry("x").setDoubleArray(cargoX);
-		NetworkTableInstance.getDefault().getTable("vision/cargo").getEntry("y").setDoubleArray(cargoY);
-		NetworkTableInstance.getDefault().getTable("vision/cargo").getEntry("r").setDoubleArray(cargoR);
+	public static Circle[] detectComponents(Mat input) {
+		blobDetector.process(input);
+		return blobDetector.circlesOutput().toArray(new Circle[]{});
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+import org.opencv.core.Mat;
+
+public interface FrameSource {
+
+	/**
+	 * Grab the next frame into mat, waiting at most timeout seconds.
+	 * @return the frame time, or 0 on error or timeout. mat holds a frame whenever this is not 0.
+	 */
+	public long grabFrame(Mat mat, double timeout);
+
+	public String getError();
+
+	public String getName();
+
+	public boolean isConnected();
+
+	/**
+	 * Drop and reopen the underlying device.
+	 */
+	public void reconnect();
+
+}
@@ -1,7 +1,9 @@
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.gson.Gson;
@@ -11,13 +13,19 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Size;
 
 import edu.wpi.cscore.MjpegServer;
 import edu.wpi.cscore.UsbCamera;
 import edu.wpi.cscore.VideoSource;
 import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
 public final class Main {
@@ -29,17 +37,33 @@ public final class Main {
 		public String path;
 		public JsonObject config;
 		public JsonElement streamConfig;
+		public CameraCalibration calibration;
+		public boolean replay;
+		public int width = 416, height = 240, fps;
+		public UsbCamera camera;
+		public MjpegServer server;
 	}
 
 	public static int team;
 	public static boolean server;
+	public static double frameBudget = 50.0;
+	public static String priority = VisionScheduler.priorityAuto;
 	public static List<CameraConfig> cameraConfigs = new ArrayList<>();
+	public static String udpAddress;
+	public static int udpPort;
+	public static UdpResultSender udpSender;
 
 	public static int source;
 	public static final int hatchCamera = 1, cargoCamera = 0;
 	public static Mat lastMat;
 
-	public static boolean running = false;
+	public static volatile boolean running = false;
+	public static volatile boolean ready = false;
+	public static long startupStart;
+	public static List<TargetPoseEstimator> estimators;
+	public static boolean warmedUp = false;
+	public static CaptureSupervisor supervisor;
+	public static Thread visionThread;
 
 	private Main() {
 	}
@@ -76,6 +100,23 @@ public final class Main {
 		// stream properties
 		cam.streamConfig = config.get("stream");
 
+		// video mode (optional)
+		if(config.has("width")) cam.width = config.get("width").getAsInt();
+		if(config.has("height")) cam.height = config.get("height").getAsInt();
+		if(config.has("fps")) cam.fps = config.get("fps").getAsInt();
+
+		// replay a directory of images instead of a device (optional)
+		if(config.has("replay")) cam.replay = config.get("replay").getAsBoolean();
+
+		// calibration (optional)
+		JsonElement calibrationElement = config.get("calibration");
+		if(calibrationElement != null) {
+			cam.calibration = CameraCalibration.fromJson(calibrationElement.getAsJsonObject());
+			if(cam.calibration == null) {
+				parseError("camera '" + cam.name + "': could not read calibration");
+			}
+		}
+
 		cam.config = config;
 
 		cameraConfigs.add(cam);
@@ -118,6 +159,44 @@ public final class Main {
 			}
 		}
 
+		// frame budget in milliseconds (optional)
+		if(obj.has("frameBudget")) {
+			frameBudget = obj.get("frameBudget").getAsDouble();
+		}
+
+		// pipeline priority (optional)
+		if(obj.has("priority")) {
+			String str = obj.get("priority").getAsString();
+			if(VisionScheduler.priorityAuto.equalsIgnoreCase(str) || VisionScheduler.priorityCargo.equalsIgnoreCase(str) || VisionScheduler.priorityTarget.equalsIgnoreCase(str)) {
+				priority = str.toLowerCase();
+			} else {
+				parseError("could not understand priority value '" + str + "'");
+			}
+		}
+
+		// cargo detector (optional)
+		if(obj.has("cargoDetector")) {
+			String str = obj.get("cargoDetector").getAsString();
+			if("components".equalsIgnoreCase(str)) {
+				CargoRunnable.useComponents = true;
+			} else if("contours".equalsIgnoreCase(str)) {
+				CargoRunnable.useComponents = false;
+			} else {
+				parseError("could not understand cargoDetector value '" + str + "'");
+			}
+		}
+
+		// low latency result channel (optional)
+		if(obj.has("udp")) {
+			JsonObject udp = obj.get("udp").getAsJsonObject();
+			if(udp.has("address") && udp.has("port")) {
+				udpAddress = udp.get("address").getAsString();
+				udpPort = udp.get("port").getAsInt();
+			} else {
+				parseError("udp needs an address and a port");
+			}
+		}
+
 		// cameras
 		JsonElement camerasElement = obj.get("cameras");
 		if(camerasElement == null) {
@@ -135,41 +214,157 @@ public final class Main {
 	}
 
 	/**
-	 * Start running the camera.
+	 * Start running the camera. Called in config order so stream ports and the primary source stay fixed.
 	 */
-	public static VideoSource startCamera(CameraConfig config) {
+	public static FrameSource startCamera(CameraConfig config) {
+		if(config.replay) {
+			System.out.println("Replaying camera '" + config.name + "' from " + config.path);
+			return new ReplayFrameSource(config.name, config.path, config.fps);
+		}
+
 		System.out.println("Starting camera '" + config.name + "' on " + config.path);
 		CameraServer inst = CameraServer.getInstance();
-		UsbCamera camera = new UsbCamera(config.name, config.path);
-		MjpegServer server = inst.startAutomaticCapture(camera);
+		config.camera = new UsbCamera(config.name, config.path);
+		config.server = inst.startAutomaticCapture(config.camera);
+		config.camera.setConnectionStrategy(VideoSource.ConnectionStrategy.kKeepOpen);
+
+		return new CameraFrameSource(config.camera);
+	}
 
+	/**
+	 * Apply the camera and stream settings. Safe to run for several cameras at once.
+	 */
+	public static void configureCamera(CameraConfig config) {
+		if(config.camera == null) return;
 		Gson gson = new GsonBuilder().create();
 
-		camera.setConfigJson(gson.toJson(config.config));
-		camera.setConnectionStrategy(VideoSource.ConnectionStrategy.kKeepOpen);
+		config.camera.setConfigJson(gson.toJson(config.config));
 
 		if(config.streamConfig != null) {
-			server.setConfigJson(gson.toJson(config.streamConfig));
+			config.server.setConfigJson(gson.toJson(config.streamConfig));
+		}
+	}
+
+	/**
+	 * Publish how long a startup phase took.
+	 */
+	public static void reportPhase(String phase, long start) {
+		double millis = (System.nanoTime() - start) / 1e6;
+		System.out.println("Startup phase '" + phase + "' took " + millis + " ms");
+		NetworkTableInstance.getDefault().getTable("vision/startup").getEntry(phase).setDouble(millis);
+	}
+
+	/**
+	 * Build undistortion maps and run both pipelines on a blank frame so the first real frame
+	 * does not pay for class loading and JIT. A failure here leaves estimators null.
+	 */
+	public static Thread startWarmup() {
+		Thread thread = new Thread(() -> {
+			long start = System.nanoTime();
+			try {
+				warmup();
+			} catch(RuntimeException | LinkageError ex) {
+				System.err.println("warmup failed: " + ex);
+				return;
+			}
+			warmedUp = true;
+			reportPhase("warmup", start);
+		});
+		thread.setName("warmup");
+		thread.start();
+		return thread;
+	}
+
+	private static void warmup() {
+		List<TargetPoseEstimator> warmEstimators = new ArrayList<>();
+		for(CameraConfig cameraConfig : cameraConfigs) {
+			if(cameraConfig.calibration == null) {
+				warmEstimators.add(null);
+			} else {
+				TargetPoseEstimator estimator = new TargetPoseEstimator(cameraConfig.calibration);
+				estimator.estimate(
+					new RotatedRect(new Point(cameraConfig.width / 2 - 30, cameraConfig.height / 2), new Size(20, 55), -75.5),
+					new RotatedRect(new Point(cameraConfig.width / 2 + 30, cameraConfig.height / 2), new Size(55, 20), -14.5),
+					cameraConfig.width, cameraConfig.height);
+				warmEstimators.add(estimator);
+			}
+		}
+		estimators = warmEstimators;
+
+		CameraConfig first = cameraConfigs.get(0);
+		Mat blank = Mat.zeros(first.height, first.width, CvType.CV_8UC3);
+		for(int i = 0; i < 10; i++) {
+			new CargoRunnable(blank).run();
+			new TargetRunnable(blank).run();
 		}
+		blank.release();
+	}
 
-		return camera;
+	/**
+	 * Start the thread that grabs frames and runs the pipelines.
+	 */
+	public static Thread startVisionThread() {
+		Thread thread = new Thread(() -> {
+			lastMat = new Mat();
+			CargoRunnable cargoRunnable = new CargoRunnable(lastMat);
+			TargetRunnable targetRunnable = new TargetRunnable(lastMat);
+			VisionScheduler scheduler = new VisionScheduler(cargoRunnable, targetRunnable, frameBudget, priority);
+			int sequence = 0;
+			while(running) {
+				int current = source;
+				if(!supervisor.grab(current, lastMat)) continue;
+				targetRunnable.estimator = estimators.get(current);
+				scheduler.run(current);
+				if(udpSender != null) {
+					udpSender.packet.fill(sequence++, supervisor.lastFrameTime, scheduler.ranTarget, scheduler.ranCargo, cargoRunnable);
+					udpSender.send();
+				}
+				if(!ready) {
+					ready = true;
+					reportPhase("first_frame", startupStart);
+					NetworkTableInstance.getDefault().getTable("vision").getEntry("ready").setBoolean(true);
+				}
+			}
+		});
+		thread.setName("vision");
+		thread.start();
+		return thread;
 	}
 
 	/**
 	 * Main.
 	 */
 	public static void main(String... args) {
+		startupStart = System.nanoTime();
+		NetworkTableInstance ntinst = NetworkTableInstance.getDefault();
+		NetworkTable visionTable = ntinst.getTable("vision");
+		NetworkTable camerasTable = visionTable.getSubTable("cameras");
+		visionTable.getEntry("ready").setBoolean(false);
+		visionTable.getSubTable("startup").getEntry("jvm").setDouble(ManagementFactory.getRuntimeMXBean().getUptime());
+
 		if(args.length > 0) {
 			configFile = args[0];
 		}
 
 		// read configuration
+		long phaseStart = System.nanoTime();
 		if(!readConfig()) {
 			return;
 		}
+		reportPhase("config", phaseStart);
+		if(cameraConfigs.isEmpty()) {
+			parseError("no cameras configured");
+			return;
+		}
+
+		// load OpenCV before any thread touches it, replay cameras read images while warmup runs
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		// warm up pipelines while the cameras connect
+		Thread warmup = startWarmup();
 
 		// start NetworkTables
-		NetworkTableInstance ntinst = NetworkTableInstance.getDefault();
+		phaseStart = System.nanoTime();
 		if(server) {
 			System.out.println("Setting up NetworkTables server");
 			ntinst.startServer();
@@ -177,42 +372,70 @@ public final class Main {
 			System.out.println("Setting up NetworkTables client for team " + team);
 			ntinst.startClientTeam(team);
 		}
+		reportPhase("networktables", phaseStart);
 
-		// start cameras
-		List<VideoSource> cameras = new ArrayList<>();
-		for(CameraConfig cameraConfig : cameraConfigs) {
-			cameras.add(startCamera(cameraConfig));
+		if(udpAddress != null) {
+			try {
+				udpSender = new UdpResultSender(udpAddress, udpPort);
+			} catch(IOException ex) {
+				System.err.println("could not open udp channel: " + ex);
+			}
+		}
+
+		// start cameras in order, then push their settings in parallel
+		phaseStart = System.nanoTime();
+		List<FrameSource> cameras = new ArrayList<>();
+		for(CameraConfig config : cameraConfigs) {
+			cameras.add(startCamera(config));
+		}
+		cameraConfigs.parallelStream().forEach(Main::configureCamera);
+		reportPhase("cameras", phaseStart);
+
+		try {
+			warmup.join();
+		} catch(InterruptedException ex) {
+			return;
 		}
+		if(estimators == null) {
+			System.err.println("running without pose estimation after failed warmup");
+			estimators = new ArrayList<>(Collections.nCopies(cameraConfigs.size(), (TargetPoseEstimator)null));
+		}
+		visionTable.getSubTable("startup").getEntry("warmup_ok").setBoolean(warmedUp);
+
+		// publish results only after warmup, so its blank frames never reach the robot
+		TargetRunnable.publisher = ResultPublisher.of(visionTable.getSubTable("targets"));
+		CargoRunnable.publisher = ResultPublisher.of(visionTable.getSubTable("cargo"));
 
 		if(cameras.size() >= 2) {
-			source = (int)NetworkTableInstance.getDefault().getTable("vision").getEntry("source").getDouble(0) % cameras.size();
-			ntinst.getTable("vision").addEntryListener("source", (table, key, entry, value, flags) -> {
+			source = (int)visionTable.getEntry("source").getDouble(0) % cameras.size();
+			visionTable.addEntryListener("source", (table, key, entry, value, flags) -> {
 				source = (int)value.getDouble() % cameras.size();
 			}, EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
 
-			Thread visionThread = new Thread(() -> {
-				lastMat = new Mat();
-				CargoRunnable cargoRunnable = new CargoRunnable(lastMat);
-				TargetRunnable targetRunnable = new TargetRunnable(lastMat);
-				while(running) {
-					CameraServer.getInstance().getVideo(cameras.get(source)).grabFrame(lastMat);
-					cargoRunnable.run();
-					targetRunnable.run();
-				}
-			});
+			supervisor = new CaptureSupervisor(cameras, () -> source);
 
 			running = true;
-			visionThread.start();
+			visionThread = startVisionThread();
 		}
 
-		// loop forever
+		// supervise forever
 		for(;;) {
 			try {
-				Thread.sleep(10000);
+				Thread.sleep(1000);
 			} catch (InterruptedException ex) {
 				running = false;
 				return;
 			}
+			if(udpSender != null) {
+				udpSender.resolve();
+			}
+			if(supervisor != null) {
+				supervisor.publish(camerasTable);
+				if(running && !visionThread.isAlive()) {
+					System.err.println("vision thread died, restarting");
+					visionThread = startVisionThread();
+				}
+			}
 		}
 	}
 
@@ -0,0 +1,73 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+public class ReplayFrameSource implements FrameSource {
+
+	String name;
+	List<Mat> frames = new ArrayList<>();
+	long frameNanos;
+
+	private int next;
+	private long lastFrame;
+
+	/**
+	 * Replay the images in a directory in name order, looping forever.
+	 * @param fps frames per second to pace at, or 0 to run as fast as possible.
+	 */
+	public ReplayFrameSource(String name, String directory, int fps) {
+		this.name = name;
+		this.frameNanos = fps > 0 ? 1000000000L / fps : 0;
+		File[] files = new File(directory).listFiles();
+		if(files == null) return;
+		Arrays.sort(files);
+		for(File file : files) {
+			Mat frame = Imgcodecs.imread(file.getPath());
+			if(!frame.empty()) frames.add(frame);
+		}
+	}
+
+	@Override
+	public long grabFrame(Mat mat, double timeout) {
+		if(frames.isEmpty()) return 0;
+		if(frameNanos > 0) {
+			long wait = lastFrame + frameNanos - System.nanoTime();
+			if(wait > 0) {
+				try {
+					Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return 0;
+				}
+			}
+		}
+		frames.get(next).copyTo(mat);
+		next = (next + 1) % frames.size();
+		lastFrame = System.nanoTime();
+		return lastFrame / 1000;
+	}
+
+	@Override
+	public String getError() {
+		return frames.isEmpty() ? "no images to replay" : "";
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return !frames.isEmpty();
+	}
+
+	@Override
+	public void reconnect() {
+	}
+
+}
@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Publishes the same sequence numbers through a NetworkTables server/client pair and through
+ * the UDP result channel on loopback, and reports how long each takes to arrive. Without the
+ * ntcore natives only the UDP side runs.
+ *
+ * Usage: ResultLatencyHarness [frames] [period ms] [flush]
+ */
+public final class ResultLatencyHarness {
+
+	static final int ntPort = 11735, udpPort = 11809;
+
+	private ResultLatencyHarness() {
+	}
+
+	public static void main(String... args) throws IOException, InterruptedException {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		long period = args.length > 1 ? Long.parseLong(args[1]) : 20;
+		boolean flush = args.length > 2 && "flush".equalsIgnoreCase(args[2]);
+
+		long[] sent = new long[frames], ntArrived = new long[frames], udpArrived = new long[frames];
+
+		NetworkTableInstance server = null, client = null;
+		NetworkTableEntry serverEntry = null;
+		String ntError = null;
+		try {
+			// NetworkTablesJNI exits the JVM when it cannot load its library, so look for it first
+			System.loadLibrary("ntcorejni");
+		} catch(UnsatisfiedLinkError ex) {
+			ntError = ex.getMessage();
+		}
+		if(ntError == null) {
+			server = NetworkTableInstance.create();
+			server.startServer("latency-harness.ini", "127.0.0.1", ntPort);
+			client = NetworkTableInstance.create();
+			client.startClient("127.0.0.1", ntPort);
+			serverEntry = server.getEntry("/vision/sequence");
+			client.getEntry("/vision/sequence").addListener(notification -> {
+				int sequence = (int)notification.value.getDouble();
+				if(sequence >= 0 && sequence < frames && ntArrived[sequence] == 0) ntArrived[sequence] = System.nanoTime();
+			}, EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+		}
+
+		UdpResultReceiver receiver = new UdpResultReceiver(udpPort);
+		UdpResultSender sender = new UdpResultSender("127.0.0.1", udpPort);
+		sender.resolve();
+		Thread receiverThread = new Thread(() -> {
+			try {
+				for(;;) {
+					ResultPacket packet = receiver.receive();
+					if(packet.sequence >= 0 && packet.sequence < frames) udpArrived[packet.sequence] = receiver.receiveNanos;
+				}
+			} catch(IOException ex) {
+				// closed at the end of the run
+			}
+		});
+		receiverThread.setDaemon(true);
+		receiverThread.start();
+
+		// let the client connect before timing anything
+		if(serverEntry != null) serverEntry.setDouble(-1);
+		Thread.sleep(1000);
+
+		for(int i = 0; i < frames; i++) {
+			sent[i] = System.nanoTime();
+			if(serverEntry != null) {
+				serverEntry.setDouble(i);
+				if(flush) server.flush();
+			}
+			sender.packet.sequence = i;
+			sender.send();
+			Thread.sleep(period);
+		}
+		Thread.sleep(500);
+
+		System.out.println("frames: " + frames + ", period " + period + " ms" + (flush ? ", flushing NT every frame" : ""));
+		System.out.println("nt:     " + (ntError == null ? summary(sent, ntArrived) : "not run, " + ntError));
+		System.out.println("udp:    " + summary(sent, udpArrived));
+
+		sender.close();
+		receiver.close();
+		if(ntError == null) {
+			client.close();
+			server.close();
+		}
+		System.exit(0);
+	}
+
+	static String summary(long[] sent, long[] arrived) {
+		long[] latencies = new long[sent.length];
+		int count = 0;
+		for(int i = 0; i < sent.length; i++) {
+			if(arrived[i] != 0) latencies[count++] = arrived[i] - sent[i];
+		}
+		if(count == 0) return "nothing arrived";
+		latencies = Arrays.copyOf(latencies, count);
+		Arrays.sort(latencies);
+		return count + " arrived, latency ms p50 " + percentile(latencies, 0.50)
+			+ "  p90 " + percentile(latencies, 0.90) + "  p99 " + percentile(latencies, 0.99);
+	}
+
+	static String percentile(long[] sorted, double p) {
+		int index = Math.min(sorted.length - 1, (int)(p * sorted.length));
+		return String.format("%.3f", sorted[index] / 1e6);
+	}
+
+}
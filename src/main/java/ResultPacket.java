@@ -0,0 +1,114 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed layout of a vision result datagram, big endian:
+ *
+ *   0  short  magic
+ *   2  short  version
+ *   4  int    sequence
+ *   8  long   capture time (microseconds, camera clock)
+ *  16  byte   1 if a target pair was found
+ *  17  byte   cargo count
+ *  18  short  fresh flags: targetsFresh, cargoFresh
+ *  20  float[6] left contour (x, y, width, height, distance, angle)
+ *  44  float[6] right contour
+ *  68  float[4] pose (x, y, z, yaw)
+ *  84  float[3] per cargo (x, y, r), maxCargo entries
+ */
+public class ResultPacket {
+
+	public static final short magic = 0x4509, version = 2;
+	// set when that section was computed from this frame rather than carried over from an earlier one
+	public static final short targetsFresh = 1, cargoFresh = 2;
+	public static final int maxCargo = 16;
+	public static final int size = 84 + maxCargo * 3 * 4;
+
+	public int sequence;
+	public long captureTime;
+	public short fresh;
+	public boolean targetsFound;
+	public double[] left = new double[6], right = new double[6], pose = new double[4];
+	public int cargoCount;
+	public double[] cargoX = new double[maxCargo], cargoY = new double[maxCargo], cargoR = new double[maxCargo];
+
+	/**
+	 * Copy the latest results of both pipelines without allocating.
+	 */
+	public void fill(int sequence, long captureTime, boolean targetsRan, boolean cargoRan, CargoRunnable cargo) {
+		this.sequence = sequence;
+		this.captureTime = captureTime;
+		fresh = (short)((targetsRan ? targetsFresh : 0) | (cargoRan ? cargoFresh : 0));
+		targetsFound = TargetRunnable.targetsFound;
+		System.arraycopy(TargetRunnable.leftResult, 0, left, 0, left.length);
+		System.arraycopy(TargetRunnable.rightResult, 0, right, 0, right.length);
+		System.arraycopy(TargetRunnable.poseResult, 0, pose, 0, pose.length);
+		double[] x = cargo.cargoX, y = cargo.cargoY, r = cargo.cargoR;
+		cargoCount = Math.min(x.length, maxCargo);
+		System.arraycopy(x, 0, cargoX, 0, cargoCount);
+		System.arraycopy(y, 0, cargoY, 0, cargoCount);
+		System.arraycopy(r, 0, cargoR, 0, cargoCount);
+	}
+
+	public boolean isTargetsFresh() {
+		return (fresh & targetsFresh) != 0;
+	}
+
+	public boolean isCargoFresh() {
+		return (fresh & cargoFresh) != 0;
+	}
+
+	public void write(ByteBuffer buffer) {
+		buffer.clear();
+		buffer.putShort(magic);
+		buffer.putShort(version);
+		buffer.putInt(sequence);
+		buffer.putLong(captureTime);
+		buffer.put((byte)(targetsFound ? 1 : 0));
+		buffer.put((byte)cargoCount);
+		buffer.putShort(fresh);
+		putFloats(buffer, left, left.length);
+		putFloats(buffer, right, right.length);
+		putFloats(buffer, pose, pose.length);
+		for(int i = 0; i < maxCargo; i++) {
+			buffer.putFloat(i < cargoCount ? (float)cargoX[i] : 0);
+			buffer.putFloat(i < cargoCount ? (float)cargoY[i] : 0);
+			buffer.putFloat(i < cargoCount ? (float)cargoR[i] : 0);
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Decode a datagram. Returns false if it is not a result packet of this version.
+	 */
+	public boolean read(ByteBuffer buffer) {
+		if(buffer.remaining() < size) return false;
+		if(buffer.getShort() != magic || buffer.getShort() != version) return false;
+		sequence = buffer.getInt();
+		captureTime = buffer.getLong();
+		targetsFound = buffer.get() != 0;
+		cargoCount = Math.min(buffer.get() & 0xff, maxCargo);
+		fresh = buffer.getShort();
+		getFloats(buffer, left);
+		getFloats(buffer, right);
+		getFloats(buffer, pose);
+		for(int i = 0; i < maxCargo; i++) {
+			cargoX[i] = buffer.getFloat();
+			cargoY[i] = buffer.getFloat();
+			cargoR[i] = buffer.getFloat();
+		}
+		return true;
+	}
+
+	private static void putFloats(ByteBuffer buffer, double[] values, int count) {
+		for(int i = 0; i < count; i++) {
+			buffer.putFloat((float)values[i]);
+		}
+	}
+
+	private static void getFloats(ByteBuffer buffer, double[] values) {
+		for(int i = 0; i < values.length; i++) {
+			values[i] = buffer.getFloat();
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+import edu.wpi.first.networktables.NetworkTable;
+
+/**
+ * Where the runnables send their results. Main points them at NetworkTables, tools that run
+ * without the ntcore natives leave them on none.
+ */
+public interface ResultPublisher {
+
+	ResultPublisher none = (key, value) -> { };
+
+	void putDoubleArray(String key, double[] value);
+
+	/**
+	 * Publish into the entries of a NetworkTables table.
+	 */
+	static ResultPublisher of(NetworkTable table) {
+		return (key, value) -> table.getEntry(key).setDoubleArray(value);
+	}
+
+}
@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+
+/**
+ * Pushes synthetic frames with known targets and cargo through both pipelines and reports
+ * throughput, latency, memory growth, GC and detection accuracy.
+ *
+ * Usage: SoakRunner [frames] [seed] [noise] [clutter] [tapeNoise] [contours|components]
+ */
+public final class SoakRunner {
+
+	static final int warmupFrames = 1000;
+	static final double targetTolerance = 6.0;
+
+	private SoakRunner() {
+	}
+
+	public static void main(String... args) {
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 4509;
+		SyntheticFrameGenerator generator = new SyntheticFrameGenerator(seed);
+		if(args.length > 2) generator.noise = Double.parseDouble(args[2]);
+		if(args.length > 3) generator.clutter = Integer.parseInt(args[3]);
+		if(args.length > 4) generator.tapeNoise = Double.parseDouble(args[4]);
+		if(args.length > 5) CargoRunnable.useComponents = "components".equalsIgnoreCase(args[5]);
+
+		Mat mat = new Mat();
+		CargoRunnable cargoRunnable = new CargoRunnable(mat);
+		TargetRunnable targetRunnable = new TargetRunnable(mat);
+
+		long[] latencies = new long[frames];
+		int targetTruePositives = 0, targetFalsePositives = 0, targetFalseNegatives = 0;
+		int cargoTruePositives = 0, cargoFalsePositives = 0, cargoFalseNegatives = 0;
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long startHeap = 0, startNative = 0, startGcCount = 0, startGcMillis = 0;
+		long renderNanos = 0, pipelineNanos = 0;
+
+		for(int frame = 0; frame < frames + warmupFrames; frame++) {
+			if(frame == warmupFrames) {
+				System.gc();
+				startHeap = memory.getHeapMemoryUsage().getUsed();
+				startNative = residentBytes();
+				startGcCount = gcCount();
+				startGcMillis = gcMillis();
+			}
+
+			long renderStart = System.nanoTime();
+			SyntheticFrameGenerator.Truth truth = generator.render(mat);
+			TargetRunnable.targetsFound = false;
+			long frameStart = System.nanoTime();
+			targetRunnable.run();
+			cargoRunnable.run();
+			long frameNanos = System.nanoTime() - frameStart;
+			if(frame < warmupFrames) continue;
+			latencies[frame - warmupFrames] = frameNanos;
+			renderNanos += frameStart - renderStart;
+			pipelineNanos += frameNanos;
+
+			boolean found = TargetRunnable.targetsFound;
+			if(found && truth.hasTargets && matches(TargetRunnable.leftResult, truth.leftCenter) && matches(TargetRunnable.rightResult, truth.rightCenter)) {
+				targetTruePositives++;
+			} else {
+				if(found) targetFalsePositives++;
+				if(truth.hasTargets) targetFalseNegatives++;
+			}
+
+			int matched = matchCargo(truth.cargo, cargoRunnable.cargoX, cargoRunnable.cargoY);
+			cargoTruePositives += matched;
+			cargoFalsePositives += cargoRunnable.cargoX.length - matched;
+			cargoFalseNegatives += truth.cargo.size() - matched;
+
+			if((frame - warmupFrames + 1) % 50000 == 0) {
+				System.out.println((frame - warmupFrames + 1) + " frames, heap " + mb(memory.getHeapMemoryUsage().getUsed()) + " MB, rss " + mb(residentBytes()) + " MB");
+			}
+		}
+
+		System.gc();
+		long heapGrowth = memory.getHeapMemoryUsage().getUsed() - startHeap;
+		long nativeGrowth = residentBytes() - startNative;
+		Arrays.sort(latencies);
+
+		System.out.println("frames:      " + frames + " (seed " + seed + ", noise " + generator.noise + ", clutter " + generator.clutter + ", tape noise " + generator.tapeNoise + ", " + (CargoRunnable.useComponents ? "components" : "contours") + ")");
+		// rendering is timed on its own so it does not drag down the pipeline figure
+		System.out.println("fps:         " + String.format("%.1f", frames / (pipelineNanos / 1e9)) + " (pipelines only)");
+		System.out.println("render ms:   " + String.format("%.3f", renderNanos / 1e6 / frames) + " per frame");
+		System.out.println("latency ms:  p50 " + percentile(latencies, 0.50) + "  p90 " + percentile(latencies, 0.90) + "  p99 " + percentile(latencies, 0.99) + "  max " + percentile(latencies, 1.0));
+		System.out.println("heap growth: " + mb(heapGrowth) + " MB");
+		System.out.println("rss growth:  " + mb(nativeGrowth) + " MB");
+		System.out.println("gc:          " + (gcCount() - startGcCount) + " collections, " + (gcMillis() - startGcMillis) + " ms");
+		System.out.println("targets:     precision " + ratio(targetTruePositives, targetTruePositives + targetFalsePositives) + "  recall " + ratio(targetTruePositives, targetTruePositives + targetFalseNegatives));
+		System.out.println("cargo:       precision " + ratio(cargoTruePositives, cargoTruePositives + cargoFalsePositives) + "  recall " + ratio(cargoTruePositives, cargoTruePositives + cargoFalseNegatives));
+		System.exit(0);
+	}
+
+	/**
+	 * A published contour matches if the center of its bounding box is near the drawn strip.
+	 */
+	static boolean matches(double[] result, Point center) {
+		double x = result[0] + result[2] / 2, y = result[1] + result[3] / 2;
+		return Math.hypot(x - center.x, y - center.y) < targetTolerance;
+	}
+
+	/**
+	 * Greedily pair detected cargo with drawn cargo and return how many paired up.
+	 */
+	static int matchCargo(List<Circle> truth, double[] x, double[] y) {
+		boolean[] used = new boolean[x.length];
+		int matched = 0;
+		for(Circle circle : truth) {
+			for(int i = 0; i < x.length; i++) {
+				if(!used[i] && Math.hypot(x[i] - circle.center.x, y[i] - circle.center.y) < Math.max(4, circle.radius / 2)) {
+					used[i] = true;
+					matched++;
+					break;
+				}
+			}
+		}
+		return matched;
+	}
+
+	static String percentile(long[] sorted, double p) {
+		int index = Math.min(sorted.length - 1, (int)(p * sorted.length));
+		return String.format("%.3f", sorted[index] / 1e6);
+	}
+
+	static String ratio(int a, int b) {
+		return b == 0 ? "n/a" : String.format("%.4f", a / (double)b);
+	}
+
+	static String mb(long bytes) {
+		return String.format("%.1f", bytes / 1048576.0);
+	}
+
+	static long gcCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += gc.getCollectionCount();
+		}
+		return count;
+	}
+
+	static long gcMillis() {
+		long millis = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += gc.getCollectionTime();
+		}
+		return millis;
+	}
+
+	/**
+	 * Resident set size from /proc, which includes OpenCV's native allocations.
+	 */
+	static long residentBytes() {
+		try {
+			for(String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+				if(line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch(IOException ex) {
+			// not Linux
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+public class SyntheticFrameGenerator {
+
+	// inside the TargetPipeline and CargoPipeline HSL thresholds
+	static final Scalar tapeColor = new Scalar(230, 255, 40), cargoColor = new Scalar(0, 128, 255);
+	// blue, purple, dark green, grey and white stay outside both thresholds
+	static final Scalar[] clutterColors = {
+		new Scalar(200, 50, 50), new Scalar(160, 40, 120), new Scalar(40, 110, 40), new Scalar(128, 128, 128), new Scalar(245, 245, 245)
+	};
+
+	public static class Truth {
+		public boolean hasTargets;
+		public Point leftCenter, rightCenter;
+		public List<Circle> cargo = new ArrayList<>();
+	}
+
+	public int width = 416, height = 240;
+	public double noise = 20;
+	// noise on the tape itself, kept apart because TargetPipeline needs S >= 240,
+	// which only holds while green stays within a few counts of 255
+	public double tapeNoise = 5;
+	public int clutter = 6;
+	// small cargo coloured specks that a detector has to reject
+	public int speckles = 0;
+	public double targetChance = 0.8;
+	public int maxCargo = 3;
+
+	Random random;
+	private Mat noiseMat = new Mat(), tapeMask = new Mat(), noMask = new Mat();
+
+	public SyntheticFrameGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Render a frame into mat and return what was drawn.
+	 */
+	public Truth render(Mat mat) {
+		Truth truth = new Truth();
+		mat.create(height, width, CvType.CV_8UC3);
+		int background = 20 + random.nextInt(60);
+		mat.setTo(new Scalar(background, background, background));
+		tapeMask.create(height, width, CvType.CV_8UC1);
+		tapeMask.setTo(new Scalar(0));
+
+		for(int i = 0; i < clutter; i++) {
+			Scalar color = clutterColors[random.nextInt(clutterColors.length)];
+			Point a = new Point(random.nextInt(width), random.nextInt(height));
+			Point b = new Point(a.x + random.nextInt(80) - 40, a.y + random.nextInt(80) - 40);
+			if(random.nextBoolean()) {
+				Imgproc.rectangle(mat, a, b, color, -1);
+			} else {
+				Imgproc.line(mat, a, b, color, 1 + random.nextInt(4));
+			}
+		}
+
+		if(random.nextDouble() < targetChance) {
+			drawTargets(mat, truth);
+		}
+
+		int cargoCount = random.nextInt(maxCargo + 1);
+		for(int attempt = 0; truth.cargo.size() < cargoCount && attempt < 20; attempt++) {
+			double radius = 8 + random.nextInt(22);
+			Point center = new Point(radius + random.nextInt((int)(width - 2 * radius)), radius + random.nextInt((int)(height - 2 * radius)));
+			if(overlaps(truth, center, radius)) continue;
+			Imgproc.circle(mat, center, (int)radius, cargoColor, -1);
+			truth.cargo.add(new Circle(center, radius));
+		}
+
+		for(int i = 0; i < speckles; i++) {
+			Point speck = new Point(random.nextInt(width), random.nextInt(height));
+			Imgproc.circle(mat, speck, 1 + random.nextInt(2), cargoColor, -1);
+		}
+
+		addNoise(mat, noise, noMask);
+		if(truth.hasTargets && tapeNoise != noise) {
+			mat.setTo(tapeColor, tapeMask);
+			addNoise(mat, tapeNoise, tapeMask);
+		}
+		return truth;
+	}
+
+	/**
+	 * Shift every channel of the masked pixels by a uniform amount in (-amount, amount).
+	 */
+	void addNoise(Mat mat, double amount, Mat mask) {
+		if(amount <= 0) return;
+		noiseMat.create(height, width, CvType.CV_8UC3);
+		Core.randu(noiseMat, 0, amount);
+		Core.add(mat, noiseMat, mat, mask);
+		Core.randu(noiseMat, 0, amount);
+		Core.subtract(mat, noiseMat, mat, mask);
+	}
+
+	/**
+	 * Draw a tape pair with the 2019 geometry at a random position, scale and small tilt.
+	 */
+	void drawTargets(Mat mat, Truth truth) {
+		double scale = 8 + random.nextDouble() * 6;
+		double tilt = random.nextDouble() * 8 - 4;
+		double separation = (TargetPoseEstimator.tapeGap + 2 * TargetPoseEstimator.tapeWidth) * scale / 2;
+		double halfHeight = TargetPoseEstimator.tapeHeight * scale / 2;
+		Point center = new Point(
+			separation + 20 + random.nextDouble() * (width - 2 * separation - 40),
+			halfHeight + 10 + random.nextDouble() * (height - 2 * halfHeight - 20)
+		);
+		truth.hasTargets = true;
+		truth.leftCenter = new Point(center.x - separation, center.y);
+		truth.rightCenter = new Point(center.x + separation, center.y);
+		drawStrip(mat, truth.leftCenter, scale, TargetPoseEstimator.tapeAngle + tilt);
+		drawStrip(mat, truth.rightCenter, scale, -TargetPoseEstimator.tapeAngle + tilt);
+	}
+
+	void drawStrip(Mat mat, Point center, double scale, double angle) {
+		double theta = Math.toRadians(angle);
+		double w = TargetPoseEstimator.tapeWidth * scale / 2, h = TargetPoseEstimator.tapeHeight * scale / 2;
+		double[][] corners = {{-w, -h}, {w, -h}, {w, h}, {-w, h}};
+		Point[] points = new Point[4];
+		for(int i = 0; i < 4; i++) {
+			points[i] = new Point(
+				center.x + corners[i][0] * Math.cos(theta) - corners[i][1] * Math.sin(theta),
+				center.y + corners[i][0] * Math.sin(theta) + corners[i][1] * Math.cos(theta)
+			);
+		}
+		MatOfPoint polygon = new MatOfPoint(points);
+		Imgproc.fillConvexPoly(mat, polygon, tapeColor);
+		Imgproc.fillConvexPoly(tapeMask, polygon, new Scalar(255));
+		polygon.release();
+	}
+
+	boolean overlaps(Truth truth, Point center, double radius) {
+		for(Circle circle : truth.cargo) {
+			if(Math.hypot(circle.center.x - center.x, circle.center.y - center.y) < circle.radius + radius + 4) return true;
+		}
+		if(truth.hasTargets) {
+			double reach = radius + TargetPoseEstimator.tapeHeight * 8;
+			if(Math.hypot(truth.leftCenter.x - center.x, truth.leftCenter.y - center.y) < reach) return true;
+			if(Math.hypot(truth.rightCenter.x - center.x, truth.rightCenter.y - center.y) < reach) return true;
+		}
+		return false;
+	}
+
+}
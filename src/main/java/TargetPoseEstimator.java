@@ -0,0 +1,110 @@
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.core.RotatedRect;
+
+public class TargetPoseEstimator {
+
+	// 2019 vision tape, in inches: 2 x 5.5 strips tilted 14.5 degrees, 8 apart at their closest points
+	static final double tapeWidth = 2.0, tapeHeight = 5.5, tapeAngle = 14.5, tapeGap = 8.0;
+
+	CameraCalibration calibration;
+
+	private MatOfPoint3f modelPoints = new MatOfPoint3f(tapeModel());
+	private MatOfPoint2f imagePoints = new MatOfPoint2f();
+	private MatOfDouble noDistortion = new MatOfDouble();
+	private Mat rvec = new Mat(), tvec = new Mat(), rotation = new Mat();
+	private Point[] corners = new Point[4], imageCorners = new Point[8];
+
+	public double x, y, z, yaw;
+
+	public TargetPoseEstimator(CameraCalibration calibration) {
+		this.calibration = calibration;
+	}
+
+	/**
+	 * Solve for the pose of a matched tape pair. Returns false if solvePnP fails.
+	 */
+	public boolean estimate(RotatedRect left, RotatedRect right, int width, int height) {
+		calibration.prepare(width, height);
+		left.points(corners);
+		orderCorners(corners, imageCorners, 0);
+		right.points(corners);
+		orderCorners(corners, imageCorners, 4);
+		for(int i = 0; i < imageCorners.length; i++) {
+			imageCorners[i] = calibration.undistort(imageCorners[i]);
+		}
+		imagePoints.fromArray(imageCorners);
+
+		if(!Calib3d.solvePnP(modelPoints, imagePoints, calibration.cameraMatrix, noDistortion, rvec, tvec)) {
+			return false;
+		}
+		x = tvec.get(0, 0)[0];
+		y = tvec.get(1, 0)[0];
+		z = tvec.get(2, 0)[0];
+		Calib3d.Rodrigues(rvec, rotation);
+		yaw = Math.toDegrees(Math.atan2(rotation.get(0, 2)[0], rotation.get(2, 2)[0]));
+		return true;
+	}
+
+	/**
+	 * Horizontal distance from the camera to the center of the target, in inches.
+	 */
+	public double distance() {
+		return Math.hypot(x, z);
+	}
+
+	/**
+	 * Order the corners of a tilted strip as top, right, bottom, left so image and model points line up.
+	 */
+	static void orderCorners(Point[] corners, Point[] out, int offset) {
+		int top = 0, right = 0, bottom = 0, left = 0;
+		for(int i = 1; i < 4; i++) {
+			if(corners[i].y < corners[top].y) top = i;
+			if(corners[i].x > corners[right].x) right = i;
+			if(corners[i].y > corners[bottom].y) bottom = i;
+			if(corners[i].x < corners[left].x) left = i;
+		}
+		out[offset]     = corners[top];
+		out[offset + 1] = corners[right];
+		out[offset + 2] = corners[bottom];
+		out[offset + 3] = corners[left];
+	}
+
+	static Point3[] tapeModel() {
+		double theta = Math.toRadians(tapeAngle);
+		double[][] strip = {
+			{-tapeWidth / 2, -tapeHeight / 2}, { tapeWidth / 2, -tapeHeight / 2},
+			{ tapeWidth / 2,  tapeHeight / 2}, {-tapeWidth / 2,  tapeHeight / 2}
+		};
+		// left strip leans right at the top, y pointing down like the image
+		Point[] leftStrip = new Point[4];
+		double maxX = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < 4; i++) {
+			leftStrip[i] = new Point(
+				strip[i][0] * Math.cos(theta) - strip[i][1] * Math.sin(theta),
+				strip[i][0] * Math.sin(theta) + strip[i][1] * Math.cos(theta)
+			);
+			maxX = Math.max(maxX, leftStrip[i].x);
+		}
+		Point[] rightStrip = new Point[4];
+		for(int i = 0; i < 4; i++) {
+			leftStrip[i].x -= maxX + tapeGap / 2;
+			rightStrip[i] = new Point(-leftStrip[i].x, leftStrip[i].y);
+		}
+
+		Point[] ordered = new Point[8];
+		orderCorners(leftStrip, ordered, 0);
+		orderCorners(rightStrip, ordered, 4);
+		Point3[] model = new Point3[8];
+		for(int i = 0; i < 8; i++) {
+			model[i] = new Point3(ordered[i].x, ordered[i].y, 0);
+		}
+		return model;
+	}
+
+}
@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.opencv.core.CvType;
@@ -11,17 +12,20 @@ import org.opencv.core.RotatedRect;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableInstance;
-
 public class TargetRunnable implements Runnable {
 
-	static NetworkTable targetsTable = NetworkTableInstance.getDefault().getTable("vision/targets");
+	// vision/targets once Main has started NetworkTables
+	public static ResultPublisher publisher = ResultPublisher.none;
 
 	static TargetPipeline pipeline = new TargetPipeline();
 	static RotatedRect leftRect, rightRect;
 
+	// last published values, reused every frame
+	static boolean targetsFound;
+	static double[] leftResult = new double[6], rightResult = new double[6], poseResult = new double[4];
+
 	Mat mat;
+	TargetPoseEstimator estimator;
 
 	public TargetRunnable(Mat mat) {
 		this.mat = mat;
@@ -35,7 +39,19 @@ public class TargetRunnable implements Runnable {
 			leftRect  = rotatedRects[0];
 			rightRect = rotatedRects[1];
 			if(rotatedRects[0] != rotatedRects[1] && diff(rotatedRects[0].angle, -75.5) < 10 && diff(rotatedRects[1].angle, -14.5) < 10) {
-				putTargets(rotatedRects[0], rotatedRects[1]);
+				if(estimator != null && estimator.estimate(rotatedRects[0], rotatedRects[1], mat.cols(), mat.rows())) {
+					putTargets(rotatedRects[0], rotatedRects[1], estimator.distance(), estimator.distance());
+					poseResult[0] = estimator.x;
+					poseResult[1] = estimator.y;
+					poseResult[2] = estimator.z;
+					poseResult[3] = estimator.yaw;
+				} else {
+					putTargets(rotatedRects[0], rotatedRects[1]);
+					Arrays.fill(poseResult, 0);
+				}
+				publisher.putDoubleArray("pose", poseResult);
+			} else {
+				resetTargetEntries();
 			}
 		} else {
 			resetTargetEntries();
@@ -55,6 +71,15 @@ public class TargetRunnable implements Runnable {
 		return (distanceW(width) + distanceH(height)) / 2;
 	}
 
+	/**
+	 * Fallback distance for cameras without calibration. The focal lengths were measured against
+	 * the upright bounding box of a tilted strip, so that is what has to be fed in.
+	 */
+	public static double distance(RotatedRect rect) {
+		Rect box = rect.boundingRect();
+		return distance(box.width, box.height);
+	}
+
 	public static double distanceW(double width) {
 		double focalLength = 393.903;
 		double realWidth = 3.313;
@@ -76,9 +101,13 @@ public class TargetRunnable implements Runnable {
 	}
 
 	public static void resetTargetEntries() {
-		NetworkTableInstance ntinst = NetworkTableInstance.getDefault();
-		targetsTable.getEntry("contour_left").setDoubleArray(new double[6]);
-		targetsTable.getEntry("contour_right").setDoubleArray(new double[6]);
+		targetsFound = false;
+		Arrays.fill(leftResult, 0);
+		Arrays.fill(rightResult, 0);
+		Arrays.fill(poseResult, 0);
+		publisher.putDoubleArray("contour_left", leftResult);
+		publisher.putDoubleArray("contour_right", rightResult);
+		publisher.putDoubleArray("pose", poseResult);
 	}
 
 	public static RotatedRect[] findTargets(List<MatOfPoint> contours) {
@@ -105,14 +134,25 @@ public class TargetRunnable implements Runnable {
 	}
 
 	public static void putTargets(RotatedRect lTarget, RotatedRect rTarget) {
-		Rect leftBox = lTarget.boundingRect();
-		targetsTable.getEntry("contour_left").setDoubleArray(new double[]{
-			leftBox.x, leftBox.y, leftBox.width, leftBox.height, distance(leftBox.width, leftBox.height), lTarget.angle
-		});
-		Rect rightBox = rTarget.boundingRect();
-		targetsTable.getEntry("contour_right").setDoubleArray(new double[]{
-			rightBox.x, rightBox.y, rightBox.width, rightBox.height, distance(rightBox.width, rightBox.height), rTarget.angle
-		});
+		putTargets(lTarget, rTarget, distance(lTarget), distance(rTarget));
+	}
+
+	public static void putTargets(RotatedRect lTarget, RotatedRect rTarget, double lDistance, double rDistance) {
+		targetsFound = true;
+		fillResult(leftResult, lTarget, lDistance);
+		publisher.putDoubleArray("contour_left", leftResult);
+		fillResult(rightResult, rTarget, rDistance);
+		publisher.putDoubleArray("contour_right", rightResult);
+	}
+
+	static void fillResult(double[] result, RotatedRect target, double distance) {
+		Rect box = target.boundingRect();
+		result[0] = box.x;
+		result[1] = box.y;
+		result[2] = box.width;
+		result[3] = box.height;
+		result[4] = distance;
+		result[5] = target.angle;
 	}
 
 }
\ No newline at end of file
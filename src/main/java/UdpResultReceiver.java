@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Robot side of the result channel. Copy this class and ResultPacket into the robot project.
+ */
+public class UdpResultReceiver {
+
+	public ResultPacket packet = new ResultPacket();
+	public long receiveNanos;
+
+	private DatagramChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(ResultPacket.size);
+
+	public UdpResultReceiver(int port) throws IOException {
+		channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(port));
+	}
+
+	/**
+	 * Block until the next valid result arrives and decode it into packet.
+	 */
+	public ResultPacket receive() throws IOException {
+		for(;;) {
+			buffer.clear();
+			channel.receive(buffer);
+			receiveNanos = System.nanoTime();
+			buffer.flip();
+			if(packet.read(buffer)) return packet;
+		}
+	}
+
+	/**
+	 * The bound port, useful when constructed with port 0.
+	 */
+	public int getPort() throws IOException {
+		return ((InetSocketAddress)channel.getLocalAddress()).getPort();
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
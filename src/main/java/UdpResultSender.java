@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+public class UdpResultSender {
+
+	public ResultPacket packet = new ResultPacket();
+
+	String host;
+	int port;
+
+	private DatagramChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(ResultPacket.size);
+
+	/**
+	 * Open the channel. The robot address is resolved later by resolve(), since the robot
+	 * may not be on the network yet.
+	 */
+	public UdpResultSender(String host, int port) throws IOException {
+		this.host = host;
+		this.port = port;
+		channel = DatagramChannel.open();
+		channel.configureBlocking(false);
+	}
+
+	/**
+	 * Try to resolve and connect to the robot. Blocks on name lookup, so keep it off the vision thread.
+	 * @return true once connected.
+	 */
+	public boolean resolve() {
+		if(channel.isConnected()) return true;
+		InetSocketAddress address = new InetSocketAddress(host, port);
+		if(address.isUnresolved()) return false;
+		try {
+			channel.connect(address);
+		} catch(IOException | RuntimeException ex) {
+			System.err.println("could not connect udp channel to " + host + ":" + port + ": " + ex);
+			return false;
+		}
+		System.out.println("Sending results to " + address);
+		return true;
+	}
+
+	/**
+	 * Send the current packet. Does nothing until resolve() has connected, and a full socket
+	 * buffer drops the datagram rather than blocking vision.
+	 */
+	public void send() {
+		if(!channel.isConnected()) return;
+		packet.write(buffer);
+		try {
+			channel.write(buffer);
+		} catch(IOException ex) {
+			// robot not listening yet, the next frame will try again
+		}
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
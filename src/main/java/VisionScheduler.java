@@ -0,0 +1,100 @@
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Runs both pipelines each frame and sheds work from the lower priority one when over budget.
+ *
+ *   level 0: both pipelines every frame
+ *   level 1: lower priority pipeline every other frame
+ *   level 2: as level 1, and cargo at half resolution when it is the lower priority
+ *   level 3: lower priority pipeline every fourth frame
+ */
+public class VisionScheduler {
+
+	public static final int maxLevel = 3;
+	public static final String priorityAuto = "auto", priorityCargo = "cargo", priorityTarget = "target";
+
+	static NetworkTable visionTable = NetworkTableInstance.getDefault().getTable("vision");
+
+	// frames to hold a level before changing it again
+	static final int settleFrames = 15;
+	// weight of the newest sample in the cost averages
+	static final double smoothing = 0.2;
+
+	CargoRunnable cargoRunnable;
+	TargetRunnable targetRunnable;
+	double budgetMillis;
+	String priority;
+
+	double cargoCost, targetCost;
+	int level;
+	// which pipelines produced results on the last frame
+	boolean ranCargo, ranTarget;
+	private long frame;
+	private long lastChange;
+
+	public VisionScheduler(CargoRunnable cargoRunnable, TargetRunnable targetRunnable, double budgetMillis, String priority) {
+		this.cargoRunnable = cargoRunnable;
+		this.targetRunnable = targetRunnable;
+		this.budgetMillis = budgetMillis;
+		this.priority = priority;
+	}
+
+	/**
+	 * Run the pipelines on the current frame, shedding the lower priority one when over budget.
+	 */
+	public void run(int source) {
+		frame++;
+		boolean targetFirst = priorityTarget.equals(priority) || (priorityAuto.equals(priority) && source == Main.hatchCamera);
+
+		// only cargo can run at half resolution: CargoPipeline's filters are all scale free and
+		// CargoBlobDetector scales its area filter, while TargetPipeline's filters are in full frame pixels
+		boolean runLower = frame % interval() == 0;
+		if(targetFirst) {
+			cargoRunnable.scale = level >= 2 ? 0.5 : 1.0;
+			targetCost = time(targetRunnable, targetCost);
+			if(runLower) cargoCost = time(cargoRunnable, cargoCost);
+		} else {
+			cargoRunnable.scale = 1.0;
+			cargoCost = time(cargoRunnable, cargoCost);
+			if(runLower) targetCost = time(targetRunnable, targetCost);
+		}
+		ranTarget = targetFirst || runLower;
+		ranCargo = !targetFirst || runLower;
+
+		double frameCost = targetFirst ? targetCost + cargoCost / interval() : cargoCost + targetCost / interval();
+		adapt(frameCost);
+		visionTable.getEntry("degradation").setDouble(level);
+		visionTable.getEntry("frame_cost").setDouble(frameCost);
+	}
+
+	/**
+	 * How many frames apart the lower priority pipeline runs at the current level.
+	 */
+	int interval() {
+		switch(level) {
+			case 0: return 1;
+			case 1: case 2: return 2;
+			default: return 4;
+		}
+	}
+
+	void adapt(double frameCost) {
+		if(frame - lastChange < settleFrames) return;
+		if(frameCost > budgetMillis && level < maxLevel) {
+			level++;
+			lastChange = frame;
+		} else if(frameCost < budgetMillis * 0.6 && level > 0) {
+			level--;
+			lastChange = frame;
+		}
+	}
+
+	static double time(Runnable runnable, double average) {
+		long start = System.nanoTime();
+		runnable.run();
+		double millis = (System.nanoTime() - start) / 1e6;
+		return average == 0 ? millis : average + (millis - average) * smoothing;
+	}
+
+}
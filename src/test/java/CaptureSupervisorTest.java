@@ -0,0 +1,135 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CaptureSupervisorTest {
+
+	long minBackoff, maxBackoff;
+
+	@Before
+	public void setUp() {
+		minBackoff = CaptureSupervisor.minBackoffMillis;
+		maxBackoff = CaptureSupervisor.maxBackoffMillis;
+	}
+
+	@After
+	public void tearDown() {
+		CaptureSupervisor.minBackoffMillis = minBackoff;
+		CaptureSupervisor.maxBackoffMillis = maxBackoff;
+	}
+
+	static void noBackoff() {
+		CaptureSupervisor.minBackoffMillis = 0;
+		CaptureSupervisor.maxBackoffMillis = 0;
+	}
+
+	@Test
+	public void skipsFailedGrabs() {
+		FakeFrameSource source = new FakeFrameSource("hatch").then(FakeFrameSource.error, 1).then(FakeFrameSource.stall, 1);
+		CaptureSupervisor supervisor = new CaptureSupervisor(Arrays.asList(source));
+		assertFalse(supervisor.grab(0, null));
+		assertFalse(supervisor.grab(0, null));
+		assertTrue(supervisor.grab(0, null));
+		assertEquals(1, supervisor.frames(0));
+		assertEquals(2, supervisor.totalErrors(0));
+		assertEquals(1, supervisor.lastFrameTime);
+		assertEquals((long)(CaptureSupervisor.grabTimeout * 1000), source.stalledMillis);
+	}
+
+	@Test
+	public void backoffDoublesUpToTheCap() {
+		assertEquals(20, CaptureSupervisor.backoff(3));
+		assertEquals(40, CaptureSupervisor.backoff(4));
+		assertEquals(80, CaptureSupervisor.backoff(5));
+		assertEquals(640, CaptureSupervisor.backoff(8));
+		assertEquals(1000, CaptureSupervisor.backoff(9));
+		assertEquals(1000, CaptureSupervisor.backoff(1000));
+	}
+
+	@Test
+	public void backsOffOnlyAfterRepeatedFailures() {
+		CaptureSupervisor.minBackoffMillis = 30;
+		CaptureSupervisor.maxBackoffMillis = 30;
+		FakeFrameSource source = new FakeFrameSource("hatch").then(FakeFrameSource.error, 3);
+		CaptureSupervisor supervisor = new CaptureSupervisor(Arrays.asList(source));
+
+		long start = System.nanoTime();
+		supervisor.grab(0, null);
+		supervisor.grab(0, null);
+		assertTrue((System.nanoTime() - start) / 1000000 < 30);
+
+		start = System.nanoTime();
+		supervisor.grab(0, null);
+		assertTrue((System.nanoTime() - start) / 1000000 >= 30);
+	}
+
+	@Test
+	public void switchingSourceEndsBackoff() {
+		CaptureSupervisor.minBackoffMillis = 1000;
+		FakeFrameSource hatch = new FakeFrameSource("hatch").then(FakeFrameSource.error, 3);
+		FakeFrameSource cargo = new FakeFrameSource("cargo");
+		int[] selected = {0};
+		CaptureSupervisor supervisor = new CaptureSupervisor(Arrays.asList(hatch, cargo), () -> selected[0]);
+		supervisor.grab(0, null);
+		supervisor.grab(0, null);
+
+		selected[0] = 1;
+		long start = System.nanoTime();
+		assertFalse(supervisor.grab(0, null));
+		assertTrue((System.nanoTime() - start) / 1000000 < 100);
+		assertTrue(supervisor.grab(1, null));
+	}
+
+	@Test
+	public void reconnectsEveryFewFailures() {
+		noBackoff();
+		int reconnectAfter = CaptureSupervisor.errorsBeforeReconnect;
+		FakeFrameSource source = new FakeFrameSource("hatch").then(FakeFrameSource.stall, reconnectAfter * 3 - 1);
+		CaptureSupervisor supervisor = new CaptureSupervisor(Arrays.asList(source));
+		for(int i = 0; i < reconnectAfter * 3 - 1; i++) {
+			supervisor.grab(0, null);
+			assertEquals((i + 1) / reconnectAfter, source.reconnects);
+		}
+		assertEquals(2, source.reconnects);
+	}
+
+	@Test
+	public void recoveryResetsConsecutiveErrors() {
+		noBackoff();
+		FakeFrameSource source = new FakeFrameSource("hatch")
+			.then(FakeFrameSource.error, 5).then(FakeFrameSource.frame, 1).then(FakeFrameSource.error, 1);
+		CaptureSupervisor supervisor = new CaptureSupervisor(Arrays.asList(source));
+		for(int i = 0; i < 5; i++) {
+			supervisor.grab(0, null);
+		}
+		assertEquals(5, supervisor.consecutiveErrors(0));
+		assertFalse(supervisor.isHealthy(0));
+
+		assertTrue(supervisor.grab(0, null));
+		assertEquals(0, supervisor.consecutiveErrors(0));
+		assertTrue(supervisor.isHealthy(0));
+
+		supervisor.grab(0, null);
+		assertEquals(1, supervisor.consecutiveErrors(0));
+		assertEquals(6, supervisor.totalErrors(0));
+	}
+
+	@Test
+	public void unselectedSourceHealthFollowsConnection() {
+		FakeFrameSource hatch = new FakeFrameSource("hatch");
+		FakeFrameSource cargo = new FakeFrameSource("cargo");
+		CaptureSupervisor supervisor = new CaptureSupervisor(Arrays.asList(cargo, hatch));
+		supervisor.grab(1, null);
+		assertTrue(supervisor.isHealthy(0));
+		cargo.connected = false;
+		assertFalse(supervisor.isHealthy(0));
+		assertEquals(0, cargo.grabs);
+	}
+
+}
@@ -0,0 +1,68 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.opencv.core.Mat;
+
+/**
+ * Frame source that plays back a script of frames, errors and stalls.
+ */
+public class FakeFrameSource implements FrameSource {
+
+	public static final int frame = 0, error = 1, stall = 2;
+
+	String name;
+	Deque<Integer> script = new ArrayDeque<>();
+	boolean connected = true;
+
+	public int grabs, reconnects;
+	public long stalledMillis;
+	private long time;
+
+	public FakeFrameSource(String name) {
+		this.name = name;
+	}
+
+	public FakeFrameSource then(int event, int count) {
+		for(int i = 0; i < count; i++) {
+			script.add(event);
+		}
+		return this;
+	}
+
+	/**
+	 * Runs out of script as frames.
+	 */
+	@Override
+	public long grabFrame(Mat mat, double timeout) {
+		grabs++;
+		int event = script.isEmpty() ? frame : script.poll();
+		if(event == stall) {
+			// a stalled camera uses up the whole timeout without sleeping the test
+			stalledMillis += (long)(timeout * 1000);
+			return 0;
+		}
+		if(event == error) return 0;
+		return ++time;
+	}
+
+	@Override
+	public String getError() {
+		return "scripted failure";
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return connected;
+	}
+
+	@Override
+	public void reconnect() {
+		reconnects++;
+	}
+
+}
@@ -0,0 +1,96 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UdpResultChannelTest {
+
+	UdpResultReceiver receiver;
+	UdpResultSender sender;
+
+	@Before
+	public void setUp() throws IOException {
+		receiver = new UdpResultReceiver(0);
+		sender = new UdpResultSender("127.0.0.1", receiver.getPort());
+		assertTrue(sender.resolve());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		sender.close();
+		receiver.close();
+	}
+
+	static void fillPacket(ResultPacket packet) {
+		packet.sequence = 42;
+		packet.captureTime = 123456789012L;
+		packet.fresh = ResultPacket.targetsFresh;
+		packet.targetsFound = true;
+		packet.left = new double[]{10, 20, 30, 40, 50.5, -75.5};
+		packet.right = new double[]{110, 20, 30, 40, 50.5, -14.5};
+		packet.pose = new double[]{1.5, -2, 60, 12.25};
+		packet.cargoCount = 2;
+		packet.cargoX[0] = 100;
+		packet.cargoY[0] = 120;
+		packet.cargoR[0] = 15;
+		packet.cargoX[1] = 300.5;
+		packet.cargoY[1] = 80;
+		packet.cargoR[1] = 22;
+	}
+
+	@Test
+	public void roundTripsOverLoopback() throws IOException {
+		fillPacket(sender.packet);
+		sender.send();
+		ResultPacket received = receiver.receive();
+
+		assertEquals(42, received.sequence);
+		assertEquals(123456789012L, received.captureTime);
+		assertTrue(received.isTargetsFresh());
+		assertFalse(received.isCargoFresh());
+		assertTrue(received.targetsFound);
+		assertArrayEquals(sender.packet.left, received.left, 1e-4);
+		assertArrayEquals(sender.packet.right, received.right, 1e-4);
+		assertArrayEquals(sender.packet.pose, received.pose, 1e-4);
+		assertEquals(2, received.cargoCount);
+		assertEquals(300.5, received.cargoX[1], 1e-4);
+		assertEquals(22, received.cargoR[1], 1e-4);
+	}
+
+	@Test
+	public void packetIsFixedSize() {
+		ByteBuffer buffer = ByteBuffer.allocate(ResultPacket.size);
+		fillPacket(sender.packet);
+		sender.packet.write(buffer);
+		assertEquals(ResultPacket.size, buffer.remaining());
+	}
+
+	@Test
+	public void rejectsForeignDatagrams() {
+		ByteBuffer buffer = ByteBuffer.allocate(ResultPacket.size);
+		ResultPacket packet = new ResultPacket();
+		packet.write(buffer);
+		buffer.putShort(0, (short)0x1234);
+		assertFalse(new ResultPacket().read(buffer));
+
+		buffer.clear();
+		buffer.limit(ResultPacket.size - 1);
+		assertFalse(new ResultPacket().read(buffer));
+	}
+
+	@Test
+	public void unresolvedRobotDoesNotThrow() throws IOException {
+		UdpResultSender unresolved = new UdpResultSender("roborio-4509-frc.invalid", 5809);
+		assertFalse(unresolved.resolve());
+		unresolved.send();
+		unresolved.close();
+	}
+
+}